@@ -0,0 +1,171 @@
+// tag::copyright[]
+/*******************************************************************************
+ * Copyright (c) 2024 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+// end::copyright[]
+package io.openliberty.guides.inventory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import io.openliberty.guides.inventory.model.SystemData;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.json.bind.JsonbException;
+
+// Parses an import body one line at a time, either as CSV with the columns
+// hostname,osName,javaVersion,heapSize or as NDJSON. Lines that cannot be
+// parsed or do not fit the SystemData columns are counted as rejected and
+// skipped, and the first MAX_ERRORS reasons are kept.
+public class SystemDataReader implements Iterator<SystemData> {
+
+    private static final int MAX_ERRORS = 100;
+    private static final int MAX_LENGTH = 50;
+    private static final Jsonb JSONB = JsonbBuilder.create();
+
+    private final BufferedReader reader;
+    private final boolean ndjson;
+    private final List<String> errors = new ArrayList<>();
+    private long line;
+    private long rejected;
+    private SystemData next;
+
+    public SystemDataReader(BufferedReader reader, boolean ndjson) {
+        this.reader = reader;
+        this.ndjson = ndjson;
+    }
+
+    public long getRejected() {
+        return rejected;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            while (next == null) {
+                String text = reader.readLine();
+                if (text == null) {
+                    return false;
+                }
+                line++;
+                if (text.isBlank() || isHeader(text)) {
+                    continue;
+                }
+                next = parse(text);
+            }
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public SystemData next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        SystemData s = next;
+        next = null;
+        return s;
+    }
+
+    private boolean isHeader(String text) {
+        return !ndjson && line == 1
+               && text.trim().toLowerCase().startsWith("hostname");
+    }
+
+    private SystemData parse(String text) {
+        try {
+            SystemData s = ndjson ? JSONB.fromJson(text, SystemData.class) : parseCsv(text);
+            String error = validate(s);
+            if (error == null) {
+                return s;
+            }
+            reject(error);
+        } catch (JsonbException | IllegalArgumentException e) {
+            reject(e.getMessage());
+        }
+        return null;
+    }
+
+    private SystemData parseCsv(String text) {
+        List<String> fields = splitCsv(text);
+        if (fields.size() != 4) {
+            throw new IllegalArgumentException("expected 4 columns but found "
+                                               + fields.size());
+        }
+        String heapSize = fields.get(3);
+        return new SystemData(fields.get(0), fields.get(1), fields.get(2),
+            heapSize == null || heapSize.isBlank() ? null : Long.valueOf(heapSize.trim()));
+    }
+
+    // Splits one CSV record. Quoted fields may contain commas and doubled
+    // quotes; an unquoted empty field is read as null.
+    private List<String> splitCsv(String text) {
+        List<String> fields = new ArrayList<>(4);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+                wasQuoted = true;
+            } else if (c == ',') {
+                fields.add(field.length() == 0 && !wasQuoted ? null : field.toString());
+                field.setLength(0);
+                wasQuoted = false;
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("unterminated quoted field");
+        }
+        fields.add(field.length() == 0 && !wasQuoted ? null : field.toString());
+        return fields;
+    }
+
+    private String validate(SystemData s) {
+        if (s == null || s.getHostname() == null || s.getHostname().isBlank()) {
+            return "hostname is required";
+        }
+        if (s.getHostname().length() > MAX_LENGTH
+            || (s.getOsName() != null && s.getOsName().length() > MAX_LENGTH)
+            || (s.getJavaVersion() != null && s.getJavaVersion().length() > MAX_LENGTH)) {
+            return "values are limited to " + MAX_LENGTH + " characters";
+        }
+        return null;
+    }
+
+    private void reject(String reason) {
+        rejected++;
+        if (errors.size() < MAX_ERRORS) {
+            errors.add("line " + line + ": " + reason);
+        }
+    }
+}
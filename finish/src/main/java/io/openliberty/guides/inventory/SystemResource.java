@@ -11,106 +11,394 @@
 // end::copyright[]
 package io.openliberty.guides.inventory;
 
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
 
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import io.openliberty.guides.inventory.concurrent.RequestExecutor;
+import io.openliberty.guides.inventory.model.RegistrationResult;
 import io.openliberty.guides.inventory.model.SystemData;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
-import jakarta.transaction.Transactional;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.DELETE;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.GenericEntity;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Link;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+import jakarta.ws.rs.core.UriBuilder;
+import jakarta.ws.rs.core.UriInfo;
 
 @ApplicationScoped
 @Path("/systems")
 public class SystemResource {
 
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    private static final Jsonb JSONB = JsonbBuilder.create();
+
     @Inject
     Inventory inventory;
 
+    @Inject
+    @ConfigProperty(name = "inventory.page.maxLimit")
+    private int maxLimit;
+
+    @Inject
+    @ConfigProperty(name = "inventory.stream.chunkSize")
+    private int chunkSize;
+
+    @Inject
+    @ConfigProperty(name = "inventory.batch.chunkSize")
+    private int batchChunkSize;
+
+    @Inject
+    @ConfigProperty(name = "inventory.export.fetchSize")
+    private int exportFetchSize;
+
+    @Inject
+    RequestExecutor executor;
+
+    // Request-scoped values such as UriInfo and Request are read as method
+    // parameters and before the work is submitted, because the executor may
+    // run it on a thread that is not handling the HTTP request.
+
     @GET
     @Path("/")
     @Produces(MediaType.APPLICATION_JSON)
-    public List<SystemData> listContents() {
-        return inventory.getSystems();
+    public CompletionStage<Response> listContents(
+        @QueryParam("limit") Integer limit,
+        @QueryParam("after") Integer after,
+        @Context UriInfo uriInfo,
+        @Context Request request) {
+
+        UriBuilder nextUri = uriInfo.getRequestUriBuilder();
+        return executor.submit(() -> {
+            int cursor = after == null ? 0 : after;
+            if (limit == null) {
+                // weak, because rows may change while the body is streamed
+                EntityTag tag = new EntityTag(inventory.getSystemsFingerprint(), true);
+                Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+                if (notModified != null) {
+                    return notModified.build();
+                }
+                return Response.ok(streamSystems(cursor)).tag(tag).build();
+            }
+            if (limit <= 0 || limit > maxLimit) {
+                return fail("limit must be between 1 and " + maxLimit + ".");
+            }
+
+            List<SystemData> page = inventory.getSystems(cursor, limit);
+            EntityTag tag = entityTag(page);
+            Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+            if (notModified != null) {
+                return notModified.build();
+            }
+            Response.ResponseBuilder builder =
+                Response.ok(new GenericEntity<List<SystemData>>(page) { }).tag(tag);
+            if (page.size() == limit) {
+                int next = page.get(page.size() - 1).getId();
+                builder.links(Link.fromUriBuilder(
+                    nextUri.replaceQueryParam("after", next)).rel("next").build());
+            }
+            return builder.build();
+        });
+    }
+
+    @GET
+    @Path("/export")
+    @Produces(APPLICATION_NDJSON)
+    public CompletionStage<Response> exportSystems() {
+        return executor.submit(() -> {
+            StreamingOutput stream = output -> {
+                Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+                inventory.exportSystems(exportFetchSize, s -> {
+                    writer.write(JSONB.toJson(s));
+                    writer.write('\n');
+                    writer.flush();
+                });
+            };
+            return Response.ok(stream).build();
+        });
     }
 
     @GET
     @Path("/{hostname}")
     @Produces(MediaType.APPLICATION_JSON)
-    public SystemData getSystem(
-        @PathParam("hostname") String hostname) {
-        return inventory.getSystem(hostname);
+    public CompletionStage<Response> getSystem(
+        @PathParam("hostname") String hostname,
+        @Context Request request) {
+
+        return executor.submit(() -> {
+            SystemData s = inventory.getSystem(hostname);
+            if (s == null) {
+                return Response.noContent().build();
+            }
+            EntityTag tag = entityTag(s);
+            Response.ResponseBuilder notModified = request.evaluatePreconditions(tag);
+            if (notModified != null) {
+                return notModified.build();
+            }
+            return Response.ok(s).tag(tag).build();
+        });
     }
 
     @POST
     @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
     @Produces(MediaType.APPLICATION_JSON)
-    @Transactional
-    public Response addSystem(
+    public CompletionStage<Response> addSystem(
         @QueryParam("hostname") String hostname,
         @QueryParam("osName") String osName,
         @QueryParam("javaVersion") String javaVersion,
         @QueryParam("heapSize") Long heapSize) {
 
-        SystemData s = inventory.getSystem(hostname);
-        if (s != null) {
-            return fail(hostname + " already exists.");
-        }
-        inventory.add(hostname, osName, javaVersion, heapSize);
-        return success(hostname + " was added.");
+        return executor.submit(() -> {
+            if (hostname == null || hostname.isBlank()) {
+                return fail("hostname is required.");
+            }
+            if (!inventory.add(hostname, osName, javaVersion, heapSize)) {
+                return fail(hostname + " already exists.");
+            }
+            return success(hostname + " was added.");
+        });
+    }
+
+    @POST
+    @Path("/batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public CompletionStage<Response> addSystems(
+        List<SystemData> systems,
+        @QueryParam("chunkSize") Integer chunkSize) {
+
+        return executor.submit(() -> {
+            if (systems == null) {
+                return fail("a JSON array of systems is required.");
+            }
+            int size = chunkSize == null ? batchChunkSize : chunkSize;
+            if (size <= 0 || size > maxLimit) {
+                return fail("chunkSize must be between 1 and " + maxLimit + ".");
+            }
+
+            // results keep the order of the request, whichever chunk they end up in
+            RegistrationResult[] results = new RegistrationResult[systems.size()];
+            Set<String> seen = new HashSet<>();
+            List<Integer> chunk = new ArrayList<>(size);
+            for (int i = 0; i < systems.size(); i++) {
+                SystemData s = systems.get(i);
+                String hostname = s == null ? null : s.getHostname();
+                if (hostname == null || hostname.isBlank()) {
+                    results[i] = new RegistrationResult(hostname,
+                        RegistrationResult.FAILED, "hostname is required.");
+                } else if (!seen.add(hostname)) {
+                    results[i] = new RegistrationResult(hostname,
+                        RegistrationResult.SKIPPED, "duplicate in request.");
+                } else {
+                    chunk.add(i);
+                    if (chunk.size() == size) {
+                        addChunk(systems, chunk, results);
+                        chunk.clear();
+                    }
+                }
+            }
+            if (!chunk.isEmpty()) {
+                addChunk(systems, chunk, results);
+            }
+            return Response.ok(new GenericEntity<List<RegistrationResult>>(
+                Arrays.asList(results)) { }).build();
+        });
     }
 
     @PUT
     @Path("/{hostname}")
     @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
     @Produces(MediaType.APPLICATION_JSON)
-    @Transactional
-    public Response updateSystem(
+    public CompletionStage<Response> updateSystem(
         @PathParam("hostname") String hostname,
         @QueryParam("osName") String osName,
         @QueryParam("javaVersion") String javaVersion,
-        @QueryParam("heapSize") Long heapSize) {
+        @QueryParam("heapSize") Long heapSize,
+        @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch) {
 
-        SystemData s = inventory.getSystem(hostname);
-        if (s == null) {
-            return fail(hostname + " does not exists.");
-        }
-        s.setOsName(osName);
-        s.setJavaVersion(javaVersion);
-        s.setHeapSize(heapSize);
-        inventory.update(s);
-        return success(hostname + " was updated.");
+        return executor.submit(() -> {
+            if (ifMatch == null) {
+                if (inventory.upsert(hostname, osName, javaVersion, heapSize)) {
+                    return created(hostname + " was added.");
+                }
+                return success(hostname + " was updated.");
+            }
+
+            int[] expected = parseEntityTag(ifMatch);
+            boolean updated = expected == null
+                ? "*".equals(ifMatch.trim())
+                  && inventory.update(hostname, osName, javaVersion, heapSize, null, null)
+                : inventory.update(hostname, osName, javaVersion, heapSize,
+                                   expected[0], expected[1]);
+            if (!updated) {
+                return fail(Response.Status.PRECONDITION_FAILED,
+                            hostname + " does not match " + ifMatch + ".");
+            }
+            return success(hostname + " was updated.");
+        });
     }
 
     @DELETE
     @Path("/{hostname}")
     @Produces(MediaType.APPLICATION_JSON)
-    @Transactional
-    public Response removeSystem(@PathParam("hostname") String hostname) {
-        SystemData s = inventory.getSystem(hostname);
-        if (s != null) {
-            inventory.removeSystem(s);
-            return success(hostname + " was removed.");
-        } else {
-            return fail(hostname + " does not exists.");
+    public CompletionStage<Response> removeSystem(
+        @PathParam("hostname") String hostname,
+        @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch) {
+
+        return executor.submit(() -> {
+            if (ifMatch != null && !"*".equals(ifMatch.trim())) {
+                int[] expected = parseEntityTag(ifMatch);
+                if (expected == null
+                    || !inventory.removeSystem(hostname, expected[0], expected[1])) {
+                    return fail(Response.Status.PRECONDITION_FAILED,
+                                hostname + " does not match " + ifMatch + ".");
+                }
+                return success(hostname + " was removed.");
+            }
+            if (inventory.removeSystem(hostname)) {
+                return success(hostname + " was removed.");
+            } else if (ifMatch != null) {
+                return fail(Response.Status.PRECONDITION_FAILED,
+                            hostname + " does not exists.");
+            } else {
+                return fail(hostname + " does not exists.");
+            }
+        });
+    }
+
+    private void addChunk(List<SystemData> systems, List<Integer> chunk,
+                          RegistrationResult[] results) {
+        List<SystemData> batch = new ArrayList<>(chunk.size());
+        for (int i : chunk) {
+            batch.add(systems.get(i));
+        }
+        try {
+            Set<String> created = inventory.addAll(batch);
+            for (int i : chunk) {
+                String hostname = systems.get(i).getHostname();
+                results[i] = created.contains(hostname)
+                    ? new RegistrationResult(hostname,
+                          RegistrationResult.CREATED, null)
+                    : new RegistrationResult(hostname,
+                          RegistrationResult.SKIPPED, "already exists.");
+            }
+        } catch (RuntimeException e) {
+            for (int i : chunk) {
+                results[i] = new RegistrationResult(systems.get(i).getHostname(),
+                    RegistrationResult.FAILED, e.getMessage());
+            }
+        }
+    }
+
+    // The tag holds the id as well as the version, so a host that is removed
+    // and added again never matches a tag of the row it replaced.
+    private EntityTag entityTag(SystemData s) {
+        return new EntityTag(s.getId() + "." + s.getVersion());
+    }
+
+    private EntityTag entityTag(List<SystemData> page) {
+        long hash = page.size();
+        for (SystemData s : page) {
+            hash = 31 * hash + s.getId();
+            hash = 31 * hash + s.getVersion();
         }
+        return new EntityTag(Long.toHexString(hash), true);
+    }
+
+    // Returns the id and version from an If-Match value such as "12.3", or
+    // null when it is not a tag this resource handed out.
+    private int[] parseEntityTag(String value) {
+        String tag = value.trim();
+        if (tag.startsWith("W/")) {
+            return null;
+        }
+        if (tag.length() < 2 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            return null;
+        }
+        String[] parts = tag.substring(1, tag.length() - 1).split("\\.");
+        if (parts.length != 2) {
+            return null;
+        }
+        try {
+            return new int[] { Integer.parseInt(parts[0]), Integer.parseInt(parts[1]) };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    // Writes the table as a JSON array, one keyset page at a time, so the
+    // response never holds more than chunkSize rows in memory.
+    private StreamingOutput streamSystems(int after) {
+        return output -> {
+            Writer writer = new BufferedWriter(
+                new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            writer.write('[');
+            int cursor = after;
+            boolean first = true;
+            List<SystemData> page;
+            do {
+                page = inventory.getSystems(cursor, chunkSize);
+                for (SystemData s : page) {
+                    if (!first) {
+                        writer.write(',');
+                    }
+                    writer.write(JSONB.toJson(s));
+                    first = false;
+                }
+                if (!page.isEmpty()) {
+                    cursor = page.get(page.size() - 1).getId();
+                }
+                writer.flush();
+            } while (page.size() == chunkSize);
+            writer.write(']');
+            writer.flush();
+        };
     }
 
     private Response success(String message) {
         return Response.ok("{ \"ok\" : \"" + message + "\" }").build();
     }
 
+    private Response created(String message) {
+        return Response.status(Response.Status.CREATED)
+                       .entity("{ \"ok\" : \"" + message + "\" }")
+                       .build();
+    }
+
     private Response fail(String message) {
-        return Response.status(Response.Status.BAD_REQUEST)
+        return fail(Response.Status.BAD_REQUEST, message);
+    }
+
+    private Response fail(Response.Status status, String message) {
+        return Response.status(status)
                        .entity("{ \"error\" : \"" + message + "\" }")
                        .build();
     }
@@ -0,0 +1,105 @@
+// tag::copyright[]
+/*******************************************************************************
+ * Copyright (c) 2024 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+// end::copyright[]
+package io.openliberty.guides.inventory.cache;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
+import jakarta.enterprise.concurrent.ManagedThreadFactory;
+import jakarta.inject.Inject;
+
+// Holds one LISTEN connection per node and evicts the hostnames that any
+// node announces with NOTIFY after committing a write.
+@ApplicationScoped
+public class CacheInvalidationListener {
+
+    public static final String CHANNEL = "systemdata_changed";
+
+    private static final Logger LOGGER =
+        Logger.getLogger(CacheInvalidationListener.class.getName());
+
+    @Resource(lookup = "jdbc/postgresql")
+    private DataSource dataSource;
+
+    @Resource
+    private ManagedThreadFactory threadFactory;
+
+    @Inject
+    SystemCache cache;
+
+    @Inject
+    @ConfigProperty(name = "inventory.cache.pollMillis")
+    private int pollMillis;
+
+    private volatile boolean running;
+    private Thread listener;
+
+    void start(@Observes @Initialized(ApplicationScoped.class) Object context) {
+        running = true;
+        listener = threadFactory.newThread(this::listen);
+        listener.start();
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+
+    private void listen() {
+        while (running) {
+            try (Connection conn = dataSource.getConnection();
+                 Statement stmt = conn.createStatement()) {
+                stmt.execute("LISTEN " + CHANNEL);
+                // anything announced while we were not listening is lost
+                cache.clear();
+                PGConnection pgConn = conn.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications =
+                        pgConn.getNotifications(pollMillis);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            cache.invalidate(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                LOGGER.log(Level.WARNING, "Lost the " + CHANNEL + " listener", e);
+                cache.clear();
+                try {
+                    Thread.sleep(pollMillis);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+// tag::copyright[]
+/*******************************************************************************
+ * Copyright (c) 2024 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+// end::copyright[]
+package io.openliberty.guides.inventory.cache;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import io.openliberty.guides.inventory.model.SystemData;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+// A bounded LRU cache of systems by hostname. Entries expire after
+// inventory.cache.ttlSeconds, and the hit, miss and eviction counters are
+// registered as an MXBean next to the ones from the monitor-1.0 feature.
+@ApplicationScoped
+public class SystemCache implements SystemCacheMXBean {
+
+    private static final String OBJECT_NAME =
+        "io.openliberty.guides.inventory:type=SystemCache";
+
+    @Inject
+    @ConfigProperty(name = "inventory.cache.maxSize")
+    private int maxSize;
+
+    @Inject
+    @ConfigProperty(name = "inventory.cache.ttlSeconds")
+    private long ttlSeconds;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private Map<String, Entry> entries;
+    private long ttlNanos;
+    // bumped by every invalidation so that a load racing with a write
+    // never puts the value it read before the write into the cache
+    private long generation;
+
+    private static class Entry {
+        final SystemData system;
+        final long loadedAt;
+
+        Entry(SystemData system, long loadedAt) {
+            this.system = system;
+            this.loadedAt = loadedAt;
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @PreDestroy
+    void destroy() {
+        try {
+            ManagementFactory.getPlatformMBeanServer()
+                             .unregisterMBean(new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            // already gone
+        }
+    }
+
+    public SystemData get(String hostname, Function<String, SystemData> loader) {
+        long loadGeneration;
+        synchronized (this) {
+            Entry entry = entries.get(hostname);
+            if (entry != null) {
+                if (System.nanoTime() - entry.loadedAt < ttlNanos) {
+                    hits.incrementAndGet();
+                    return entry.system;
+                }
+                entries.remove(hostname);
+                evictions.incrementAndGet();
+            }
+            loadGeneration = generation;
+        }
+        misses.incrementAndGet();
+        SystemData system = loader.apply(hostname);
+        if (system != null) {
+            synchronized (this) {
+                if (loadGeneration == generation) {
+                    entries.put(hostname, new Entry(system, System.nanoTime()));
+                }
+            }
+        }
+        return system;
+    }
+
+    public synchronized void invalidate(String hostname) {
+        generation++;
+        entries.remove(hostname);
+    }
+
+    public synchronized void invalidate(Collection<String> hostnames) {
+        generation++;
+        entries.keySet().removeAll(hostnames);
+    }
+
+    public synchronized void clear() {
+        generation++;
+        entries.clear();
+    }
+
+    @Override
+    public long getHits() {
+        return hits.get();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public synchronized int getSize() {
+        return entries.size();
+    }
+}
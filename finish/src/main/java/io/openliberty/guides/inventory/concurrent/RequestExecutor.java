@@ -0,0 +1,21 @@
+// tag::copyright[]
+/*******************************************************************************
+ * Copyright (c) 2024 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+// end::copyright[]
+package io.openliberty.guides.inventory.concurrent;
+
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+// Runs the work of a SystemResource request, including its Inventory calls.
+public interface RequestExecutor {
+
+    <T> CompletionStage<T> submit(Supplier<T> work);
+}
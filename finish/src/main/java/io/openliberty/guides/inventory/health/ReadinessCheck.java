@@ -11,7 +11,15 @@
 // end::copyright[]
 package io.openliberty.guides.inventory.health;
 
-import java.net.Socket;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.sql.DataSource;
 
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.health.HealthCheck;
@@ -19,33 +27,137 @@ import org.eclipse.microprofile.health.HealthCheckResponse;
 import org.eclipse.microprofile.health.HealthCheckResponseBuilder;
 import org.eclipse.microprofile.health.Readiness;
 
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ManagedScheduledExecutorService;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.context.Initialized;
+import jakarta.enterprise.event.Observes;
 import jakarta.inject.Inject;
 
+// Validates a pooled connection in the background and serves the last
+// result, so a probe never waits on the database or opens a connection.
 @Readiness
 @ApplicationScoped
 public class ReadinessCheck implements HealthCheck {
 
+    private static final String NAME = "Readiness Check";
+
+    // registered by the monitor-1.0 feature once the pool is first used
+    private static final String POOL_STATS =
+        "WebSphere:type=ConnectionPoolStats,name=jdbc/postgresql";
+
+    @Resource(lookup = "jdbc/postgresql")
+    private DataSource dataSource;
+
+    @Resource
+    private ManagedScheduledExecutorService executor;
+
+    @Inject
+    @ConfigProperty(name = "db.maxPoolSize")
+    private int maxPoolSize;
+
+    @Inject
+    @ConfigProperty(name = "health.db.intervalMillis")
+    private long intervalMillis;
+
+    @Inject
+    @ConfigProperty(name = "health.db.timeoutSeconds")
+    private int timeoutSeconds;
+
     @Inject
-    @ConfigProperty(name = "db.hostname")
-    private String host;
+    @ConfigProperty(name = "health.db.maxLatencyMillis")
+    private long maxLatencyMillis;
 
     @Inject
-    @ConfigProperty(name = "db.portnum")
-    private int port;
+    @ConfigProperty(name = "health.db.maxPoolUtilisation")
+    private double maxPoolUtilisation;
+
+    private volatile HealthCheckResponse last =
+        HealthCheckResponse.named(NAME).down()
+                           .withData("reason", "not checked yet").build();
+    private volatile long lastCheckedAt = System.nanoTime();
+    private ScheduledFuture<?> refresh;
+
+    void start(@Observes @Initialized(ApplicationScoped.class) Object context) {
+        refresh = executor.scheduleWithFixedDelay(this::refresh, 0,
+                                                  intervalMillis,
+                                                  TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (refresh != null) {
+            refresh.cancel(true);
+        }
+    }
 
     @Override
     public HealthCheckResponse call() {
+        // a refresh stuck for several intervals is itself a failure
+        long age = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - lastCheckedAt);
+        if (age > 3 * intervalMillis + TimeUnit.SECONDS.toMillis(timeoutSeconds)) {
+            return HealthCheckResponse.named(NAME).down()
+                                      .withData("reason", "no result for " + age + "ms")
+                                      .build();
+        }
+        return last;
+    }
+
+    private void refresh() {
         HealthCheckResponseBuilder responseBuilder =
-            HealthCheckResponse.named("Readiness Check");
+            HealthCheckResponse.named(NAME);
 
-        try {
-            Socket socket = new Socket(host, port);
-            socket.close();
-            responseBuilder.up();
+        long latencyMillis;
+        try (Connection conn = dataSource.getConnection()) {
+            long start = System.nanoTime();
+            boolean valid = conn.isValid(timeoutSeconds);
+            latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if (!valid) {
+                publish(responseBuilder.down().withData("reason", "connection is not valid"));
+                return;
+            }
         } catch (Exception e) {
-            responseBuilder.down();
+            publish(responseBuilder.down().withData("reason", String.valueOf(e.getMessage())));
+            return;
+        }
+
+        long inUse = poolInUse();
+        double utilisation = (double) inUse / maxPoolSize;
+        responseBuilder.withData("latencyMillis", latencyMillis)
+                       .withData("poolInUse", inUse)
+                       .withData("poolMaxSize", maxPoolSize)
+                       .withData("poolUtilisationPercent", Math.round(utilisation * 100));
+        if (latencyMillis > maxLatencyMillis) {
+            responseBuilder.down().withData("reason", "database latency over "
+                                            + maxLatencyMillis + "ms");
+        } else if (utilisation > maxPoolUtilisation) {
+            responseBuilder.down().withData("reason", "connection pool saturated");
+        } else {
+            responseBuilder.up();
+        }
+        publish(responseBuilder);
+    }
+
+    private void publish(HealthCheckResponseBuilder responseBuilder) {
+        last = responseBuilder.build();
+        lastCheckedAt = System.nanoTime();
+    }
+
+    // The connection used by the check itself has been returned by now,
+    // so this counts only connections held by requests.
+    private long poolInUse() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(POOL_STATS);
+            if (!server.isRegistered(name)) {
+                return 0;
+            }
+            long managed = ((Number) server.getAttribute(name, "ManagedConnectionCount")).longValue();
+            long free = ((Number) server.getAttribute(name, "FreeConnectionCount")).longValue();
+            return Math.max(0, managed - free);
+        } catch (JMException e) {
+            return 0;
         }
-        return responseBuilder.build();
     }
 }
@@ -0,0 +1,97 @@
+// tag::copyright[]
+/*******************************************************************************
+ * Copyright (c) 2024 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+// end::copyright[]
+package io.openliberty.guides.inventory.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Priority;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.concurrent.ContextService;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Alternative;
+import jakarta.inject.Inject;
+import jakarta.interceptor.Interceptor;
+import jakarta.ws.rs.ServiceUnavailableException;
+
+// Runs each request on its own virtual thread, so a request waiting on
+// JDBC no longer holds a Liberty executor thread. The application context
+// is captured with the default ContextService, both for the work and for
+// the stages that write the response. At most maxConcurrency requests run
+// at a time, so the virtual threads cannot queue without limit on the
+// connection pool. A request that waits longer than acquireTimeoutMillis
+// for a permit gets a 503.
+@Alternative
+@Priority(Interceptor.Priority.APPLICATION)
+@ApplicationScoped
+public class VirtualThreadRequestExecutor implements RequestExecutor {
+
+    @Resource
+    private ContextService contextService;
+
+    @Inject
+    @ConfigProperty(name = "inventory.virtual.maxConcurrency")
+    private int maxConcurrency;
+
+    @Inject
+    @ConfigProperty(name = "inventory.virtual.acquireTimeoutMillis")
+    private long acquireTimeoutMillis;
+
+    private ExecutorService executor;
+    private Semaphore permits;
+
+    @PostConstruct
+    void init() {
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        permits = new Semaphore(maxConcurrency, true);
+    }
+
+    @PreDestroy
+    void destroy() {
+        executor.shutdown();
+    }
+
+    @Override
+    public <T> CompletionStage<T> submit(Supplier<T> work) {
+        Supplier<T> bounded = contextService.contextualSupplier(() -> {
+            acquire();
+            try {
+                return work.get();
+            } finally {
+                permits.release();
+            }
+        });
+        return contextService.withContextCapture(
+            CompletableFuture.supplyAsync(bounded, executor));
+    }
+
+    private void acquire() {
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new ServiceUnavailableException(
+                    TimeUnit.MILLISECONDS.toSeconds(acquireTimeoutMillis) + 1);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+// tag::copyright[]
+/*******************************************************************************
+ * Copyright (c) 2024 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+// end::copyright[]
+package it.io.openliberty.guides.inventory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.net.Socket;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer.OrderAnnotation;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.output.Slf4jLogConsumer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.images.builder.ImageFromDockerfile;
+
+// Compares bulk registration throughput with IDENTITY ids, which are read
+// back one row at a time, against ids allocated in blocks of 50 from one
+// sequence, which lets the inserts go out as a single JDBC batch. Both run
+// against temporary tables, so the SystemData table is left untouched.
+@Tag("benchmark")
+@TestMethodOrder(OrderAnnotation.class)
+public class IdAllocationBenchmarkIT {
+
+    private static Logger logger = LoggerFactory.getLogger(IdAllocationBenchmarkIT.class);
+
+    private static final int DB_PORT = 5432;
+    private static final int ALLOCATION_SIZE = 50;
+    private static final int CHUNK_SIZE = 500;
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 5000);
+
+    private static ImageFromDockerfile postgresImage
+        = new ImageFromDockerfile("postgres-sample")
+              .withDockerfile(Paths.get("../postgres/Dockerfile"));
+
+    private static GenericContainer<?> postgresContainer
+        = new GenericContainer<>(postgresImage)
+              .withExposedPorts(DB_PORT)
+              // the image restarts once after running schema.sql
+              .waitingFor(Wait.forLogMessage(
+                  ".*database system is ready to accept connections.*", 2))
+              .withLogConsumer(new Slf4jLogConsumer(logger));
+
+    private static Connection conn;
+    private static double identityRate;
+    private static double pooledRate;
+
+    private static boolean isServiceRunning(String host, int port) {
+        try {
+            Socket socket = new Socket(host, port);
+            socket.close();
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    @BeforeAll
+    public static void setup() throws Exception {
+        String url;
+        if (isServiceRunning("localhost", DB_PORT)) {
+            url = "jdbc:postgresql://localhost:" + DB_PORT + "/admindb";
+        } else {
+            postgresContainer.start();
+            url = "jdbc:postgresql://" + postgresContainer.getHost() + ":"
+                  + postgresContainer.getMappedPort(DB_PORT) + "/admindb";
+        }
+        conn = DriverManager.getConnection(url, "admin", "adminpwd");
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TEMP TABLE identity_bench ("
+                + "id SERIAL PRIMARY KEY, hostname varchar(50) NOT NULL UNIQUE, "
+                + "osName varchar(50), javaVersion varchar(50), heapSize bigint)");
+            stmt.execute("CREATE TEMP SEQUENCE pooled_bench_seq START "
+                + ALLOCATION_SIZE + " INCREMENT " + ALLOCATION_SIZE);
+            stmt.execute("CREATE TEMP TABLE pooled_bench ("
+                + "id integer PRIMARY KEY, hostname varchar(50) NOT NULL UNIQUE, "
+                + "osName varchar(50), javaVersion varchar(50), heapSize bigint)");
+        }
+        conn.setAutoCommit(false);
+    }
+
+    @AfterAll
+    public static void tearDown() throws Exception {
+        logger.info(String.format(
+            "BENCHMARK: %d rows, identity %.0f rows/s, pooled %.0f rows/s, %.1fx",
+            ROWS, identityRate, pooledRate, pooledRate / identityRate));
+        if (conn != null) {
+            conn.close();
+        }
+        postgresContainer.stop();
+    }
+
+    @Test
+    @Order(1)
+    public void testIdentityInserts() throws Exception {
+        long start = System.nanoTime();
+        try (PreparedStatement insert = conn.prepareStatement(
+                 "INSERT INTO identity_bench (hostname, osName, javaVersion, heapSize) "
+                 + "VALUES (?, 'linux', '17', 2048)");
+             PreparedStatement lastval = conn.prepareStatement("SELECT lastval()")) {
+            for (int i = 0; i < ROWS; i++) {
+                insert.setString(1, "host" + i);
+                insert.executeUpdate();
+                try (ResultSet rs = lastval.executeQuery()) {
+                    rs.next();
+                }
+                if ((i + 1) % CHUNK_SIZE == 0) {
+                    conn.commit();
+                }
+            }
+            conn.commit();
+        }
+        identityRate = ROWS / ((System.nanoTime() - start) / 1e9);
+        assertEquals(ROWS, count("identity_bench"));
+    }
+
+    @Test
+    @Order(2)
+    public void testPooledInserts() throws Exception {
+        long start = System.nanoTime();
+        Deque<Integer> ids = new ArrayDeque<>();
+        try (PreparedStatement insert = conn.prepareStatement(
+                 "INSERT INTO pooled_bench (id, hostname, osName, javaVersion, heapSize) "
+                 + "VALUES (?, ?, 'linux', '17', 2048)");
+             PreparedStatement nextval = conn.prepareStatement(
+                 "SELECT nextval('pooled_bench_seq') FROM generate_series(1, ?)")) {
+            for (int from = 0; from < ROWS; from += CHUNK_SIZE) {
+                int size = Math.min(CHUNK_SIZE, ROWS - from);
+                if (ids.size() < size) {
+                    nextval.setInt(1, (size - ids.size() + ALLOCATION_SIZE - 1)
+                                      / ALLOCATION_SIZE);
+                    try (ResultSet rs = nextval.executeQuery()) {
+                        while (rs.next()) {
+                            int last = rs.getInt(1);
+                            for (int id = last - ALLOCATION_SIZE + 1; id <= last; id++) {
+                                ids.add(id);
+                            }
+                        }
+                    }
+                }
+                for (int i = from; i < from + size; i++) {
+                    insert.setInt(1, ids.poll());
+                    insert.setString(2, "host" + i);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+                conn.commit();
+            }
+        }
+        pooledRate = ROWS / ((System.nanoTime() - start) / 1e9);
+        assertEquals(ROWS, count("pooled_bench"));
+    }
+
+    private int count(String table) throws Exception {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+// tag::copyright[]
+/*******************************************************************************
+ * Copyright (c) 2024 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+// end::copyright[]
+package it.io.openliberty.guides.inventory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.resteasy.client.jaxrs.ResteasyClient;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.Network;
+import org.testcontainers.containers.output.Slf4jLogConsumer;
+import org.testcontainers.containers.wait.strategy.Wait;
+import org.testcontainers.images.builder.ImageFromDockerfile;
+
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriBuilder;
+
+// Drives concurrent reads against the inventory image selected by the
+// inventory.dockerfile property and logs throughput and latency. Run it
+// with -Pbenchmark and again with -Pbenchmark,java21 to compare platform
+// threads with virtual threads on the same Testcontainers setup.
+@Tag("benchmark")
+public class RequestThroughputIT {
+
+    private static Logger logger = LoggerFactory.getLogger(RequestThroughputIT.class);
+
+    private static final String DB_HOST = "postgres";
+    private static final int DB_PORT = 5432;
+    private static final int HOSTS = 200;
+    private static final int CLIENTS = Integer.getInteger("benchmark.clients", 64);
+    private static final int SECONDS = Integer.getInteger("benchmark.seconds", 20);
+
+    private static int httpPort = Integer.parseInt(System.getProperty("http.port"));
+    private static int httpsPort = Integer.parseInt(System.getProperty("https.port"));
+    private static String contextRoot = System.getProperty("context.root") + "/api";
+    private static String dockerfile =
+        System.getProperty("inventory.dockerfile", "./Dockerfile");
+
+    private static Network network = Network.newNetwork();
+
+    private static GenericContainer<?> postgresContainer
+        = new GenericContainer<>(new ImageFromDockerfile("postgres-sample")
+                  .withDockerfile(Paths.get("../postgres/Dockerfile")))
+              .withNetwork(network)
+              .withExposedPorts(DB_PORT)
+              .withNetworkAliases(DB_HOST)
+              .withLogConsumer(new Slf4jLogConsumer(logger));
+
+    private static LibertyContainer inventoryContainer
+        = new LibertyContainer(new ImageFromDockerfile("inventory:1.0-SNAPSHOT")
+                  .withDockerfile(Paths.get(dockerfile)), httpPort, httpsPort)
+              .withEnv("DB_HOSTNAME", DB_HOST)
+              .withNetwork(network)
+              .waitingFor(Wait.forHttp("/health/ready").forPort(httpPort));
+
+    private static ResteasyClient restClient;
+    private static SystemResourceClient client;
+
+    @BeforeAll
+    public static void setup() {
+        postgresContainer.start();
+        inventoryContainer.start();
+        restClient = ((ResteasyClientBuilder) ResteasyClientBuilder.newBuilder())
+                         .connectionPoolSize(CLIENTS)
+                         .maxPooledPerRoute(CLIENTS)
+                         .build();
+        client = restClient.target(UriBuilder.fromPath(
+                     inventoryContainer.getBaseURL() + contextRoot))
+                     .proxy(SystemResourceClient.class);
+
+        List<SystemData> systems = new ArrayList<>(HOSTS);
+        for (int i = 0; i < HOSTS; i++) {
+            SystemData system = new SystemData();
+            system.setHostname("load" + i);
+            system.setOsName("linux");
+            system.setJavaVersion("17");
+            system.setHeapSize(Long.valueOf(2048));
+            systems.add(system);
+        }
+        client.addSystems(systems).close();
+    }
+
+    @AfterAll
+    public static void tearDown() {
+        restClient.close();
+        inventoryContainer.stop();
+        postgresContainer.stop();
+        network.close();
+    }
+
+    @Test
+    public void testConcurrentReads() throws Exception {
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(SECONDS);
+        List<Future<long[]>> results = new ArrayList<>(CLIENTS);
+        for (int c = 0; c < CLIENTS; c++) {
+            results.add(clients.submit(() -> {
+                long[] latencies = new long[1024];
+                int count = 0;
+                while (System.nanoTime() < deadline) {
+                    String hostname = "load" + ThreadLocalRandom.current().nextInt(HOSTS);
+                    long start = System.nanoTime();
+                    Response response = count % 10 == 0
+                        ? client.listContents(50, null)
+                        : client.getSystem(hostname, null);
+                    response.readEntity(String.class);
+                    assertEquals(200, response.getStatus());
+                    response.close();
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = System.nanoTime() - start;
+                }
+                return Arrays.copyOf(latencies, count);
+            }));
+        }
+
+        List<long[]> perClient = new ArrayList<>(CLIENTS);
+        int total = 0;
+        for (Future<long[]> result : results) {
+            long[] latencies = result.get();
+            perClient.add(latencies);
+            total += latencies.length;
+        }
+        clients.shutdown();
+
+        long[] all = new long[total];
+        int offset = 0;
+        for (long[] latencies : perClient) {
+            System.arraycopy(latencies, 0, all, offset, latencies.length);
+            offset += latencies.length;
+        }
+        Arrays.sort(all);
+        assertTrue(total > 0);
+        logger.info(String.format(
+            "BENCHMARK: %s, %d clients, %.0f requests/s, p50 %.2fms, p99 %.2fms",
+            dockerfile, CLIENTS, total / (double) SECONDS,
+            all[total / 2] / 1e6, all[(int) (total * 0.99)] / 1e6));
+    }
+}
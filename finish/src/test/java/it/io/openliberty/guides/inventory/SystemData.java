@@ -19,6 +19,7 @@ public class SystemData {
     private String osName;
     private String javaVersion;
     private Long heapSize;
+    private int version;
     // end::fields[]
 
     public SystemData() {
@@ -44,6 +45,10 @@ public class SystemData {
     public Long getHeapSize() {
         return heapSize;
     }
+
+    public int getVersion() {
+        return version;
+    }
     // end::getMethods[]
 
     // tag::setMethods[]
@@ -66,5 +71,9 @@ public class SystemData {
     public void setHeapSize(Long heapSize) {
         this.heapSize = heapSize;
     }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
     // end::setMethods[]
 }
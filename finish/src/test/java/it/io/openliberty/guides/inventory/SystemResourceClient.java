@@ -17,12 +17,14 @@ import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.ws.rs.Consumes;
 import jakarta.ws.rs.DELETE;
 import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 
@@ -38,6 +40,18 @@ public interface SystemResourceClient {
     List<SystemData> listContents();
     // end::listContents[]
 
+    @GET
+    @Path("/")
+    @Produces(MediaType.APPLICATION_JSON)
+    Response listContents(
+        @QueryParam("limit") Integer limit,
+        @QueryParam("after") Integer after);
+
+    @GET
+    @Path("/export")
+    @Produces("application/x-ndjson")
+    Response exportSystems();
+
     // tag::getSystem[]
     @GET
     @Path("/{hostname}")
@@ -46,6 +60,13 @@ public interface SystemResourceClient {
         @PathParam("hostname") String hostname);
     // end::getSystem[]
 
+    @GET
+    @Path("/{hostname}")
+    @Produces(MediaType.APPLICATION_JSON)
+    Response getSystem(
+        @PathParam("hostname") String hostname,
+        @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch);
+
     // tag::addSystem[]
     @POST
     @Consumes(MediaType.APPLICATION_FORM_URLENCODED)
@@ -57,6 +78,12 @@ public interface SystemResourceClient {
         @QueryParam("heapSize") Long heapSize);
     // end::addSystem[]
 
+    @POST
+    @Path("/batch")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    Response addSystems(List<SystemData> systems);
+
     // tag::updateSystem[]
     @PUT
     @Path("/{hostname}")
@@ -76,5 +103,12 @@ public interface SystemResourceClient {
     Response removeSystem(
         @PathParam("hostname") String hostname);
     // end::removeSystem[]
+
+    @DELETE
+    @Path("/{hostname}")
+    @Produces(MediaType.APPLICATION_JSON)
+    Response removeSystem(
+        @PathParam("hostname") String hostname,
+        @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch);
 }
 
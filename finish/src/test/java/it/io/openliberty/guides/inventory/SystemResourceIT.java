@@ -12,9 +12,14 @@
 package it.io.openliberty.guides.inventory;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.net.Socket;
 import java.util.List;
+import java.util.Map;
 import java.nio.file.Paths;
 
 import org.jboss.resteasy.client.jaxrs.ResteasyClient;
@@ -35,6 +40,10 @@ import org.testcontainers.containers.wait.strategy.Wait;
 import org.testcontainers.images.builder.ImageFromDockerfile;
 
 import jakarta.ws.rs.client.ClientBuilder;
+import jakarta.ws.rs.core.GenericType;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Link;
+import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.UriBuilder;
 
 @TestMethodOrder(OrderAnnotation.class)
@@ -58,7 +67,8 @@ public class SystemResourceIT {
     // tag::invImage[]
     private static ImageFromDockerfile invImage
         = new ImageFromDockerfile("inventory:1.0-SNAPSHOT")
-              .withDockerfile(Paths.get("./Dockerfile"));
+              .withDockerfile(Paths.get(
+                  System.getProperty("inventory.dockerfile", "./Dockerfile")));
     // end::invImage[]
 
     private static SystemResourceClient client;
@@ -221,4 +231,139 @@ public class SystemResourceIT {
         assertEquals(0, systems.size());
     }
     // end::testRemoveSystem[]
+
+    @Test
+    @Order(4)
+    public void testListContentsPaged() {
+        logger.info("TEST: Testing list systems page by page");
+        for (int i = 1; i <= 3; i++) {
+            client.addSystem("host" + i, "linux", "17", Long.valueOf(1024));
+        }
+
+        Response first = client.listContents(2, null);
+        List<SystemData> page = first.readEntity(new GenericType<List<SystemData>>() { });
+        assertEquals(2, page.size());
+        assertEquals("host1", page.get(0).getHostname());
+        Link next = first.getLink("next");
+        assertNotNull(next);
+        first.close();
+
+        String query = next.getUri().getQuery();
+        int after = Integer.parseInt(query.replaceAll(".*after=(\\d+).*", "$1"));
+        Response second = client.listContents(2, after);
+        page = second.readEntity(new GenericType<List<SystemData>>() { });
+        assertEquals(1, page.size());
+        assertEquals("host3", page.get(0).getHostname());
+        assertNull(second.getLink("next"));
+        second.close();
+
+        for (int i = 1; i <= 3; i++) {
+            client.removeSystem("host" + i);
+        }
+        assertEquals(0, client.listContents().size());
+    }
+
+    @Test
+    @Order(5)
+    public void testAddSystems() {
+        logger.info("TEST: Testing add systems in a batch");
+        client.addSystem("batch1", "linux", "11", Long.valueOf(2048));
+        List<SystemData> systems = List.of(
+            newSystem("batch1"), newSystem("batch2"),
+            newSystem("batch3"), newSystem("batch2"));
+
+        Response response = client.addSystems(systems);
+        List<Map<String, Object>> results =
+            response.readEntity(new GenericType<List<Map<String, Object>>>() { });
+        response.close();
+        assertEquals(4, results.size());
+        assertEquals("skipped", results.get(0).get("status"));
+        assertEquals("created", results.get(1).get("status"));
+        assertEquals("created", results.get(2).get("status"));
+        assertEquals("skipped", results.get(3).get("status"));
+        assertEquals(3, client.listContents().size());
+
+        for (int i = 1; i <= 3; i++) {
+            client.removeSystem("batch" + i);
+        }
+    }
+
+    @Test
+    @Order(6)
+    public void testUpsertSystem() {
+        logger.info("TEST: Testing create or update a system");
+        Response response =
+            client.updateSystem("upsert1", "linux", "17", Long.valueOf(2048));
+        assertEquals(201, response.getStatus());
+        response.close();
+
+        response = client.updateSystem("upsert1", "linux", "21", Long.valueOf(4096));
+        assertEquals(200, response.getStatus());
+        response.close();
+        SystemData system = client.getSystem("upsert1");
+        assertEquals("21", system.getJavaVersion());
+        assertEquals(Long.valueOf(4096), system.getHeapSize());
+
+        response = client.addSystem("upsert1", "linux", "21", Long.valueOf(4096));
+        assertEquals(400, response.getStatus());
+        response.close();
+        client.removeSystem("upsert1");
+    }
+
+    @Test
+    @Order(7)
+    public void testConditionalRequests() {
+        logger.info("TEST: Testing ETag and If-Match handling");
+        client.addSystem("etag1", "linux", "17", Long.valueOf(2048));
+
+        Response response = client.getSystem("etag1", null);
+        String etag = response.getHeaderString(HttpHeaders.ETAG);
+        response.close();
+        assertNotNull(etag);
+
+        response = client.getSystem("etag1", etag);
+        assertEquals(304, response.getStatus());
+        assertFalse(response.hasEntity());
+        response.close();
+
+        client.updateSystem("etag1", "linux", "21", Long.valueOf(2048));
+        response = client.removeSystem("etag1", etag);
+        assertEquals(412, response.getStatus());
+        response.close();
+
+        response = client.getSystem("etag1", etag);
+        assertEquals(200, response.getStatus());
+        String current = response.getHeaderString(HttpHeaders.ETAG);
+        response.close();
+        response = client.removeSystem("etag1", current);
+        assertEquals(200, response.getStatus());
+        response.close();
+    }
+
+    @Test
+    @Order(8)
+    public void testExportSystems() {
+        logger.info("TEST: Testing export systems as NDJSON");
+        client.addSystem("export1", "linux", "17", Long.valueOf(2048));
+        client.addSystem("export2", "linux", "21", Long.valueOf(4096));
+
+        Response response = client.exportSystems();
+        assertEquals(200, response.getStatus());
+        String[] lines = response.readEntity(String.class).split("\n");
+        response.close();
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].contains("\"hostname\":\"export"));
+
+        client.removeSystem("export1");
+        client.removeSystem("export2");
+    }
+
+    private SystemData newSystem(String hostname) {
+        SystemData system = new SystemData();
+        system.setHostname(hostname);
+        system.setOsName("linux");
+        system.setJavaVersion("17");
+        system.setHeapSize(Long.valueOf(4096));
+        return system;
+    }
 }
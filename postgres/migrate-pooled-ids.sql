@@ -0,0 +1,21 @@
+-- Moves a SystemData table created by an earlier schema.sql, with a SERIAL
+-- id and an unused systemData_id sequence, to the pooled systemData_id_seq.
+-- Stop the inventory service before running it.
+BEGIN;
+
+LOCK TABLE SystemData IN ACCESS EXCLUSIVE MODE;
+
+DROP SEQUENCE IF EXISTS systemData_id;
+
+ALTER SEQUENCE systemData_id_seq INCREMENT 50;
+
+-- the next block starts after the highest id in use
+SELECT setval('systemData_id_seq',
+              (COALESCE(MAX(id), 0) / 50 + 2) * 50,
+              false)
+FROM SystemData;
+
+ALTER TABLE SystemData
+ALTER COLUMN id SET DEFAULT nextval('systemData_id_seq');
+
+COMMIT;
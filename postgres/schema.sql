@@ -1,13 +1,20 @@
+-- ids are handed out in blocks of 50, see SystemData.ID_ALLOCATION_SIZE
+CREATE SEQUENCE systemData_id_seq
+START 50
+INCREMENT 50;
+
 CREATE TABLE SystemData (
-    id SERIAL,
-    hostname varchar(50),
+    id integer DEFAULT nextval('systemData_id_seq'),
+    hostname varchar(50) NOT NULL,
     osName varchar(50),
     javaVersion varchar(50),
     heapSize bigint,
+    version integer NOT NULL DEFAULT 0,
     primary key(id)
 );
 
-CREATE SEQUENCE systemData_id
-START 1
-INCREMENT 1
-OWNED BY SystemData.id;
\ No newline at end of file
+ALTER SEQUENCE systemData_id_seq
+OWNED BY SystemData.id;
+
+CREATE UNIQUE INDEX IF NOT EXISTS systemData_hostname_idx
+ON SystemData (hostname);
@@ -0,0 +1,75 @@
+// tag::copyright[]
+/*******************************************************************************
+ * Copyright (c) 2024 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+// end::copyright[]
+package io.openliberty.guides.inventory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import javax.sql.DataSource;
+
+import io.openliberty.guides.inventory.model.SystemData;
+import jakarta.annotation.Resource;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.persistence.PersistenceException;
+
+// Hands out SystemData ids the same way EclipseLink does for the entity:
+// every nextval of the sequence reserves the block of ID_ALLOCATION_SIZE
+// ids that ends at the returned value, so JDBC inserts and JPA persists
+// can share the sequence without a round trip per row.
+@ApplicationScoped
+public class IdAllocator {
+
+    private static final String NEXT_BLOCKS =
+        "SELECT nextval('" + SystemData.ID_SEQUENCE + "') FROM generate_series(1, ?)";
+
+    @Resource(lookup = "jdbc/postgresql")
+    private DataSource dataSource;
+
+    private final Deque<Integer> blocks = new ArrayDeque<>();
+    private int next = 1;
+    private int last = 0;
+
+    public synchronized int[] allocate(int count) {
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            if (next > last) {
+                if (blocks.isEmpty()) {
+                    fetchBlocks(count - i);
+                }
+                last = blocks.poll();
+                next = last - SystemData.ID_ALLOCATION_SIZE + 1;
+            }
+            ids[i] = next++;
+        }
+        return ids;
+    }
+
+    private void fetchBlocks(int needed) {
+        int count = (needed + SystemData.ID_ALLOCATION_SIZE - 1)
+                    / SystemData.ID_ALLOCATION_SIZE;
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(NEXT_BLOCKS)) {
+            stmt.setInt(1, count);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    blocks.add(rs.getInt(1));
+                }
+            }
+        } catch (SQLException e) {
+            throw new PersistenceException(e);
+        }
+    }
+}
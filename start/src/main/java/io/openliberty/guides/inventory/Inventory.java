@@ -11,25 +11,140 @@
 // end::copyright[]
 package io.openliberty.guides.inventory;
 
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
+import javax.sql.DataSource;
+
+import io.openliberty.guides.inventory.cache.CacheInvalidationListener;
+import io.openliberty.guides.inventory.cache.SystemCache;
 import io.openliberty.guides.inventory.model.SystemData;
+import jakarta.annotation.Resource;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceException;
+import jakarta.transaction.Synchronization;
+import jakarta.transaction.TransactionSynchronizationRegistry;
+import jakarta.transaction.Transactional;
 
 @ApplicationScoped
 public class Inventory {
 
+    public interface SystemWriter {
+        void write(SystemData system) throws IOException;
+    }
+
+    private static final String INSERT_SYSTEM =
+        "INSERT INTO SystemData (id, hostname, osName, javaVersion, heapSize, version) "
+        + "VALUES (?, ?, ?, ?, ?, 0) ON CONFLICT (hostname) DO NOTHING";
+
+    // xmax is only zero on a row version written by an insert, so it tells
+    // whether the upsert created or updated the row in the same statement
+    private static final String UPSERT_SYSTEM =
+        "INSERT INTO SystemData (id, hostname, osName, javaVersion, heapSize, version) "
+        + "VALUES (?, ?, ?, ?, ?, 0) ON CONFLICT (hostname) DO UPDATE SET "
+        + "osName = EXCLUDED.osName, javaVersion = EXCLUDED.javaVersion, "
+        + "heapSize = EXCLUDED.heapSize, version = SystemData.version + 1 "
+        + "RETURNING (xmax = 0) AS inserted";
+
+    private static final String UPDATE_SYSTEM =
+        "UPDATE SystemData SET osName = ?, javaVersion = ?, heapSize = ?, "
+        + "version = version + 1 WHERE hostname = ?";
+
+    private static final String UPDATE_SYSTEM_VERSION =
+        UPDATE_SYSTEM + " AND id = ? AND version = ?";
+
+    private static final String EXPORT_SYSTEMS =
+        "SELECT id, hostname, osName, javaVersion, heapSize, version FROM SystemData";
+
+    private static final String NOTIFY_CHANGED =
+        "SELECT pg_notify(?, hostname) FROM unnest(?) AS t(hostname)";
+
     @PersistenceContext(name = "jpa-unit")
     private EntityManager em;
 
+    @Resource(lookup = "jdbc/postgresql")
+    private DataSource dataSource;
+
+    @Resource
+    private TransactionSynchronizationRegistry txRegistry;
+
+    @Inject
+    SystemCache cache;
+
+    @Inject
+    IdAllocator ids;
+
     public List<SystemData> getSystems() {
         return em.createNamedQuery("SystemData.findAll", SystemData.class)
                  .getResultList();
     }
 
+    public List<SystemData> getSystems(int after, int limit) {
+        return em.createNamedQuery("SystemData.findPage", SystemData.class)
+                 .setParameter("after", after)
+                 .setMaxResults(limit)
+                 .getResultList();
+    }
+
+    // Reads the whole table through a server-side cursor, fetchSize rows at a
+    // time, and hands each row to the writer as a plain object that is never
+    // managed by the persistence context. The driver only uses a cursor when
+    // autocommit is off. If the writer fails, for example because the client
+    // went away, the query is cancelled.
+    public void exportSystems(int fetchSize, SystemWriter writer) throws IOException {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(EXPORT_SYSTEMS,
+                     ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                stmt.setFetchSize(fetchSize);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        SystemData s = new SystemData(rs.getString("hostname"),
+                            rs.getString("osName"), rs.getString("javaVersion"),
+                            rs.getObject("heapSize", Long.class));
+                        s.setId(rs.getInt("id"));
+                        s.setVersion(rs.getInt("version"));
+                        writer.write(s);
+                    }
+                } catch (IOException e) {
+                    stmt.cancel();
+                    throw e;
+                }
+            } finally {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new PersistenceException(e);
+        }
+    }
+
+    // Changes whenever a system is added, updated or removed: ids are never
+    // reused, so adds and removes move the count or the id sum, and every
+    // update raises the version sum.
+    public String getSystemsFingerprint() {
+        Object[] row = em.createNamedQuery("SystemData.fingerprint", Object[].class)
+                         .getSingleResult();
+        return row[0] + "." + (row[1] == null ? 0 : row[1])
+               + "." + (row[2] == null ? 0 : row[2]);
+    }
+
     public SystemData getSystem(String hostname) {
+        return cache.get(hostname, this::findSystem);
+    }
+
+    private SystemData findSystem(String hostname) {
         List<SystemData> systems =
             em.createNamedQuery("SystemData.findSystem", SystemData.class)
               .setParameter("hostname", hostname)
@@ -37,16 +152,172 @@ public class Inventory {
         return systems == null || systems.isEmpty() ? null : systems.get(0);
     }
 
-    public void add(String hostname, String osName, String javaVersion, Long heapSize) {
-        em.persist(new SystemData(hostname, osName, javaVersion, heapSize));
+    @Transactional
+    public boolean add(String hostname, String osName, String javaVersion, Long heapSize) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(INSERT_SYSTEM)) {
+            setSystem(stmt, ids.allocate(1)[0], hostname, osName, javaVersion, heapSize);
+            if (stmt.executeUpdate() == 0) {
+                return false;
+            }
+        } catch (SQLException e) {
+            throw new PersistenceException(e);
+        }
+        invalidate(Set.of(hostname));
+        return true;
+    }
+
+    // Inserts the systems whose hostname is not registered yet as one JDBC
+    // batch in its own transaction, and returns the hostnames it created.
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public Set<String> addAll(List<SystemData> systems) {
+        Set<String> created = new HashSet<>();
+        int[] systemIds = ids.allocate(systems.size());
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(INSERT_SYSTEM)) {
+            for (int i = 0; i < systems.size(); i++) {
+                SystemData s = systems.get(i);
+                setSystem(stmt, systemIds[i], s.getHostname(), s.getOsName(),
+                          s.getJavaVersion(), s.getHeapSize());
+                stmt.addBatch();
+            }
+            int[] counts = stmt.executeBatch();
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == 1) {
+                    created.add(systems.get(i).getHostname());
+                }
+            }
+        } catch (SQLException e) {
+            throw new PersistenceException(e);
+        }
+        if (!created.isEmpty()) {
+            invalidate(created);
+        }
+        return created;
     }
 
+    // Creates or updates the system in one statement and returns true if
+    // the row was created.
+    @Transactional
+    public boolean upsert(String hostname, String osName, String javaVersion, Long heapSize) {
+        boolean inserted;
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(UPSERT_SYSTEM)) {
+            setSystem(stmt, ids.allocate(1)[0], hostname, osName, javaVersion, heapSize);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                inserted = rs.getBoolean("inserted");
+            }
+        } catch (SQLException e) {
+            throw new PersistenceException(e);
+        }
+        invalidate(Set.of(hostname));
+        return inserted;
+    }
+
+    @Transactional
     public void update(SystemData s) {
         em.merge(s);
+        invalidate(Set.of(s.getHostname()));
+    }
+
+    // Updates an existing system. When id and version are given the update
+    // only applies if the row still has them, which is how If-Match works.
+    @Transactional
+    public boolean update(String hostname, String osName, String javaVersion,
+                          Long heapSize, Integer id, Integer version) {
+        String sql = id == null ? UPDATE_SYSTEM : UPDATE_SYSTEM_VERSION;
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, osName);
+            stmt.setString(2, javaVersion);
+            setHeapSize(stmt, 3, heapSize);
+            stmt.setString(4, hostname);
+            if (id != null) {
+                stmt.setInt(5, id);
+                stmt.setInt(6, version);
+            }
+            if (stmt.executeUpdate() == 0) {
+                return false;
+            }
+        } catch (SQLException e) {
+            throw new PersistenceException(e);
+        }
+        invalidate(Set.of(hostname));
+        return true;
+    }
+
+    @Transactional
+    public boolean removeSystem(String hostname, int id, int version) {
+        int removed = em.createNamedQuery("SystemData.deleteSystemVersion")
+                        .setParameter("hostname", hostname)
+                        .setParameter("id", id)
+                        .setParameter("version", version)
+                        .executeUpdate();
+        if (removed == 0) {
+            return false;
+        }
+        invalidate(Set.of(hostname));
+        return true;
+    }
+
+    @Transactional
+    public boolean removeSystem(String hostname) {
+        int removed = em.createNamedQuery("SystemData.deleteSystem")
+                        .setParameter("hostname", hostname)
+                        .executeUpdate();
+        if (removed == 0) {
+            return false;
+        }
+        invalidate(Set.of(hostname));
+        return true;
+    }
+
+    // Postgres only delivers the NOTIFY to the other nodes if the transaction
+    // commits. The local entries are dropped once the transaction completes,
+    // so a read racing with the write cannot cache the old row.
+    private void invalidate(Collection<String> hostnames) {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(NOTIFY_CHANGED)) {
+            stmt.setString(1, CacheInvalidationListener.CHANNEL);
+            stmt.setArray(2, conn.createArrayOf("varchar", hostnames.toArray()));
+            stmt.execute();
+        } catch (SQLException e) {
+            throw new PersistenceException(e);
+        }
+
+        if (txRegistry.getTransactionKey() == null) {
+            cache.invalidate(hostnames);
+            return;
+        }
+        txRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                cache.invalidate(hostnames);
+            }
+        });
+    }
+
+    private void setSystem(PreparedStatement stmt, int id, String hostname, String osName,
+                           String javaVersion, Long heapSize) throws SQLException {
+        stmt.setInt(1, id);
+        stmt.setString(2, hostname);
+        stmt.setString(3, osName);
+        stmt.setString(4, javaVersion);
+        setHeapSize(stmt, 5, heapSize);
     }
 
-    public void removeSystem(SystemData s) {
-        em.remove(s);
+    private void setHeapSize(PreparedStatement stmt, int index, Long heapSize)
+        throws SQLException {
+        if (heapSize == null) {
+            stmt.setNull(index, Types.BIGINT);
+        } else {
+            stmt.setLong(index, heapSize);
+        }
     }
 
 }
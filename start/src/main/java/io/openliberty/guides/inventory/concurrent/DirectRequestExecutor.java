@@ -0,0 +1,29 @@
+// tag::copyright[]
+/*******************************************************************************
+ * Copyright (c) 2024 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+// end::copyright[]
+package io.openliberty.guides.inventory.concurrent;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+
+import jakarta.enterprise.context.ApplicationScoped;
+
+// Runs the work on the Liberty thread that is handling the request. The
+// java21 build profile replaces it with VirtualThreadRequestExecutor.
+@ApplicationScoped
+public class DirectRequestExecutor implements RequestExecutor {
+
+    @Override
+    public <T> CompletionStage<T> submit(Supplier<T> work) {
+        return CompletableFuture.completedFuture(work.get());
+    }
+}
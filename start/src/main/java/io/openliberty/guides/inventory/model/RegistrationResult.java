@@ -0,0 +1,56 @@
+// tag::copyright[]
+/*******************************************************************************
+ * Copyright (c) 2024 IBM Corporation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License 2.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-2.0/
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ *******************************************************************************/
+// end::copyright[]
+package io.openliberty.guides.inventory.model;
+
+public class RegistrationResult {
+
+    public static final String CREATED = "created";
+    public static final String SKIPPED = "skipped";
+    public static final String FAILED = "failed";
+
+    private String hostname;
+    private String status;
+    private String message;
+
+    public RegistrationResult() {
+    }
+
+    public RegistrationResult(String hostname, String status, String message) {
+        this.hostname = hostname;
+        this.status = status;
+        this.message = message;
+    }
+
+    public String getHostname() {
+        return hostname;
+    }
+
+    public void setHostname(String hostname) {
+        this.hostname = hostname;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+}
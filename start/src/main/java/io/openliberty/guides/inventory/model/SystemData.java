@@ -18,27 +18,44 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.NamedQuery;
 import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 @Entity
-@Table(name = "SystemData")
+@Table(name = "SystemData",
+       indexes = @Index(name = "systemData_hostname_idx",
+                        columnList = "hostname", unique = true))
 @NamedQuery(name = "SystemData.findAll", query = "SELECT e FROM SystemData e")
+@NamedQuery(name = "SystemData.findPage",
+    query = "SELECT e FROM SystemData e WHERE e.id > :after ORDER BY e.id")
 @NamedQuery(name = "SystemData.findSystem",
     query = "SELECT e FROM SystemData e WHERE e.hostname = :hostname")
+@NamedQuery(name = "SystemData.deleteSystem",
+    query = "DELETE FROM SystemData e WHERE e.hostname = :hostname")
+@NamedQuery(name = "SystemData.deleteSystemVersion",
+    query = "DELETE FROM SystemData e WHERE e.hostname = :hostname "
+            + "AND e.id = :id AND e.version = :version")
+@NamedQuery(name = "SystemData.fingerprint",
+    query = "SELECT COUNT(e), SUM(e.id), SUM(e.version) FROM SystemData e")
 public class SystemData implements Serializable {
     private static final long serialVersionUID = 1L;
 
+    // must match the INCREMENT of the sequence in postgres/schema.sql
+    public static final int ID_ALLOCATION_SIZE = 50;
+    public static final String ID_SEQUENCE = "systemData_id_seq";
+
     @SequenceGenerator(name = "SEQ",
-                       sequenceName = "systemData_id_seq",
-                       allocationSize = 1)
-    @GeneratedValue(strategy = GenerationType.IDENTITY, generator = "SEQ")
+                       sequenceName = ID_SEQUENCE,
+                       allocationSize = ID_ALLOCATION_SIZE)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "SEQ")
     @Id
     @Column(name = "id")
     private int id;
 
-    @Column(name = "hostname")
+    @Column(name = "hostname", nullable = false)
     private String hostname;
     @Column(name = "osName")
     private String osName;
@@ -46,6 +63,9 @@ public class SystemData implements Serializable {
     private String javaVersion;
     @Column(name = "heapSize")
     private Long heapSize;
+    @Version
+    @Column(name = "version")
+    private int version;
 
     public SystemData() {
     }
@@ -97,6 +117,14 @@ public class SystemData implements Serializable {
         this.heapSize = heapSize;
     }
 
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
     @Override
     public int hashCode() {
         return hostname.hashCode();